@@ -1,8 +1,12 @@
 package com.alessandragodoy;
 
 import com.alessandragodoy.model.AccountType;
+import com.alessandragodoy.model.ClientBalance;
 import com.alessandragodoy.service.BankService;
+import com.alessandragodoy.service.EndOfDayBatchService;
+import com.alessandragodoy.service.PortfolioReportService;
 
+import java.time.LocalDate;
 import java.util.Scanner;
 
 /**
@@ -10,7 +14,9 @@ import java.util.Scanner;
  * It provides a command-line interface for users to interact with the system.
  */
 public class SystemDriver {
-	private static final BankService bankService = new BankService();
+	private static final PortfolioReportService portfolioReportService = new PortfolioReportService();
+	private static final BankService bankService = new BankService(portfolioReportService);
+	private static final EndOfDayBatchService endOfDayBatchService = new EndOfDayBatchService();
 	private static final Scanner scanner = new Scanner(System.in);
 	public static void main(String[] args) {
 		boolean exit = false;
@@ -21,7 +27,9 @@ public class SystemDriver {
 			System.out.println("3. Depositar");
 			System.out.println("4. Retirar");
 			System.out.println("5. Consultar balance");
-			System.out.println("6. Salir");
+			System.out.println("6. Ejecutar cierre diario");
+			System.out.println("7. Reporte de cartera");
+			System.out.println("8. Salir");
 			System.out.println("Selecciona una opción:");
 
 			int option = scanner.nextInt();
@@ -33,7 +41,9 @@ public class SystemDriver {
 				case 3 -> deposit();
 				case 4 -> withdraw();
 				case 5 -> checkBalance();
-				case 6 -> {
+				case 6 -> runEndOfDay();
+				case 7 -> portfolioReport();
+				case 8 -> {
 					System.out.println("***Gracias por usar el sistema bancario***");
 					exit = true;
 				}
@@ -113,4 +123,36 @@ public class SystemDriver {
 			System.out.println("Error: " + e.getMessage());
 		}
 	}
+
+	private static void runEndOfDay() {
+		try {
+			endOfDayBatchService.runEndOfDay(LocalDate.now());
+		} catch (RuntimeException e) {
+			System.out.println("Error: " + e.getMessage());
+		}
+
+		// Even a failed run may have committed some partitions, so the report is always reloaded.
+		try {
+			portfolioReportService.reload();
+		} catch (RuntimeException e) {
+			System.out.println("Error: " + e.getMessage());
+		}
+	}
+
+	private static void portfolioReport() {
+		try {
+			portfolioReportService.refresh();
+			System.out.println("\n---Reporte de Cartera---");
+			System.out.println("Cuentas por tipo: " + portfolioReportService.accountCountByType());
+			System.out.println("Balance total por tipo: " + portfolioReportService.totalBalanceByType());
+			System.out.println("Balance mediano: $" + portfolioReportService.percentileBalance(null, 50));
+			System.out.println("Balance percentil 90: $" + portfolioReportService.percentileBalance(null, 90));
+			System.out.println("Top 5 clientes por balance:");
+			for (ClientBalance clientBalance : portfolioReportService.topClientsByBalance(5)) {
+				System.out.println(clientBalance);
+			}
+		} catch (RuntimeException e) {
+			System.out.println("Error: " + e.getMessage());
+		}
+	}
 }
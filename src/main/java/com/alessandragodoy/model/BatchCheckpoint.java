@@ -0,0 +1,53 @@
+package com.alessandragodoy.model;
+
+import java.time.LocalDate;
+
+/**
+ * Represents the persisted progress of one partition of an end-of-day batch run.
+ * <p>
+ * A partition covers the accounts whose client ID falls in {@code [rangeStart, rangeEnd)}. The last processed
+ * account number lets an interrupted run resume right after the last committed chunk instead of restarting.
+ * </p>
+ */
+public class BatchCheckpoint {
+	private final LocalDate runDate;
+	private final int partitionIndex;
+	private final int rangeStart;    // Inclusive client ID
+	private final int rangeEnd;    // Exclusive client ID
+	private final String lastAccountNumber;    // Null until the first chunk is committed
+	private final boolean completed;
+
+	public BatchCheckpoint(LocalDate runDate, int partitionIndex, int rangeStart, int rangeEnd,
+			String lastAccountNumber, boolean completed) {
+		this.runDate = runDate;
+		this.partitionIndex = partitionIndex;
+		this.rangeStart = rangeStart;
+		this.rangeEnd = rangeEnd;
+		this.lastAccountNumber = lastAccountNumber;
+		this.completed = completed;
+	}
+
+	public LocalDate getRunDate() {
+		return runDate;
+	}
+
+	public int getPartitionIndex() {
+		return partitionIndex;
+	}
+
+	public int getRangeStart() {
+		return rangeStart;
+	}
+
+	public int getRangeEnd() {
+		return rangeEnd;
+	}
+
+	public String getLastAccountNumber() {
+		return lastAccountNumber;
+	}
+
+	public boolean isCompleted() {
+		return completed;
+	}
+}
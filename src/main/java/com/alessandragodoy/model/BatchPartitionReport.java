@@ -0,0 +1,50 @@
+package com.alessandragodoy.model;
+
+/**
+ * Summarizes the work done on one partition during an end-of-day batch run.
+ */
+public class BatchPartitionReport {
+	private final int partitionIndex;
+	private final long accountsProcessed;
+	private final long accountsAdjusted;
+	private final long elapsedMillis;
+
+	public BatchPartitionReport(int partitionIndex, long accountsProcessed, long accountsAdjusted,
+			long elapsedMillis) {
+		this.partitionIndex = partitionIndex;
+		this.accountsProcessed = accountsProcessed;
+		this.accountsAdjusted = accountsAdjusted;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * Calculates the number of accounts processed per second in this partition.
+	 *
+	 * @return the partition throughput in accounts per second
+	 */
+	public double getThroughput() {
+		return elapsedMillis == 0 ? accountsProcessed : accountsProcessed * 1000.0 / elapsedMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "Partición " + getPartitionIndex() + ": " + getAccountsProcessed() + " cuentas, " + getAccountsAdjusted()
+				+ " ajustadas, " + getElapsedMillis() + " ms (" + String.format("%.1f", getThroughput()) + " cuentas/s)";
+	}
+
+	public int getPartitionIndex() {
+		return partitionIndex;
+	}
+
+	public long getAccountsProcessed() {
+		return accountsProcessed;
+	}
+
+	public long getAccountsAdjusted() {
+		return accountsAdjusted;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+}
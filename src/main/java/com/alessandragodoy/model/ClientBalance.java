@@ -0,0 +1,33 @@
+package com.alessandragodoy.model;
+
+/**
+ * Represents the combined balance of every account owned by a client, as reported by portfolio queries.
+ */
+public class ClientBalance {
+	private final int idClient;
+	private final String fullName;
+	private final double totalBalance;
+
+	public ClientBalance(int idClient, String fullName, double totalBalance) {
+		this.idClient = idClient;
+		this.fullName = fullName;
+		this.totalBalance = totalBalance;
+	}
+
+	@Override
+	public String toString() {
+		return "ID: " + getIdClient() + " - " + getFullName() + " - Balance total: $" + getTotalBalance();
+	}
+
+	public int getIdClient() {
+		return idClient;
+	}
+
+	public String getFullName() {
+		return fullName;
+	}
+
+	public double getTotalBalance() {
+		return totalBalance;
+	}
+}
@@ -0,0 +1,58 @@
+package com.alessandragodoy.model;
+
+/**
+ * Represents the recorded outcome of a deposit or withdrawal made with an idempotency key.
+ * <p>
+ * A retried request carrying the same key is answered with this result instead of being applied again, as long as
+ * it targets the same account with the same movement type and amount.
+ * </p>
+ */
+public class IdempotentResult {
+	private final String idempotencyKey;
+	private final MovementType movementType;
+	private final String accountNumber;
+	private final double amount;
+	private final double balance;    // Balance right after the movement was applied
+
+	public IdempotentResult(String idempotencyKey, MovementType movementType, String accountNumber, double amount,
+			double balance) {
+		this.idempotencyKey = idempotencyKey;
+		this.movementType = movementType;
+		this.accountNumber = accountNumber;
+		this.amount = amount;
+		this.balance = balance;
+	}
+
+	/**
+	 * Checks whether a request carries the same movement as the one recorded for this key.
+	 *
+	 * @param movementType  the movement type of the request
+	 * @param accountNumber the account number of the request
+	 * @param amount        the amount of the request
+	 * @return true if the request matches this result
+	 */
+	public boolean matches(MovementType movementType, String accountNumber, double amount) {
+		return this.movementType == movementType && this.accountNumber.equals(accountNumber)
+				&& Double.compare(this.amount, amount) == 0;
+	}
+
+	public String getIdempotencyKey() {
+		return idempotencyKey;
+	}
+
+	public MovementType getMovementType() {
+		return movementType;
+	}
+
+	public String getAccountNumber() {
+		return accountNumber;
+	}
+
+	public double getAmount() {
+		return amount;
+	}
+
+	public double getBalance() {
+		return balance;
+	}
+}
@@ -0,0 +1,9 @@
+package com.alessandragodoy.model;
+
+/**
+ * Enum representing the types of balance movements.
+ */
+public enum MovementType {
+	DEPOSIT,
+	WITHDRAWAL
+}
@@ -8,6 +8,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.function.Consumer;
 
 import static com.alessandragodoy.configuration.DatabaseConnection.getConnection;
 
@@ -151,4 +152,70 @@ public class BankAccountDAO {
 			throw new RuntimeException(e);
 		}
 	}
+
+	/**
+	 * Finds the lowest and highest client IDs that own at least one bank account.
+	 *
+	 * @return an array holding the minimum and maximum client ID, or null if there are no accounts
+	 * @throws RuntimeException if a database access error occurs
+	 */
+	public int[] findClientIdRange() {
+		String sql = "SELECT MIN(client_id) AS min_id, MAX(client_id) AS max_id FROM bank_account";
+		try (Connection connection = getConnection(); PreparedStatement statement = connection.prepareStatement(sql)) {
+
+			ResultSet resultSet = statement.executeQuery();
+
+			if (resultSet.next()) {
+				int minId = resultSet.getInt("min_id");
+				if (!resultSet.wasNull()) {
+					return new int[]{minId, resultSet.getInt("max_id")};
+				}
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+		return null;
+	}
+
+	/**
+	 * Streams the bank accounts of the clients in the given ID range, ordered by account number.
+	 * <p>
+	 * Rows are read through a forward-only cursor with the given fetch size, so only one fetch window is held in
+	 * memory at a time. With MySQL the connection URL needs {@code useCursorFetch=true} for the fetch size to open
+	 * a server-side cursor.
+	 * </p>
+	 *
+	 * @param fromClientId        the lowest client ID to include
+	 * @param toClientId          the client ID to stop at, exclusive
+	 * @param afterAccountNumber  only accounts with a greater account number are read, or null to read them all
+	 * @param fetchSize           the number of rows to fetch from the server per round trip
+	 * @param consumer            receives each account with its current balance
+	 * @throws RuntimeException if a database access error occurs
+	 */
+	public void streamAccounts(int fromClientId, int toClientId, String afterAccountNumber, int fetchSize,
+			Consumer<BankAccount> consumer) {
+		String sql = "SELECT account_number, account_type_id, balance FROM bank_account "
+				+ "WHERE client_id >= ? AND client_id < ? AND account_number > ? ORDER BY account_number";
+		try (Connection connection = getConnection();
+			 PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+					 ResultSet.CONCUR_READ_ONLY)) {
+
+			statement.setFetchSize(fetchSize);
+			statement.setInt(1, fromClientId);
+			statement.setInt(2, toClientId);
+			statement.setString(3, afterAccountNumber == null ? "" : afterAccountNumber);
+
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					String accountNumber = resultSet.getString("account_number");
+					BankAccount account = resultSet.getInt("account_type_id") == 1 ? new SavingsAccount(
+							accountNumber) : new CheckingAccount(accountNumber);
+					account.setBalance(resultSet.getDouble("balance"));
+					consumer.accept(account);
+				}
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
 }
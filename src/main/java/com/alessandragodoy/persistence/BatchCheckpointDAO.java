@@ -0,0 +1,159 @@
+package com.alessandragodoy.persistence;
+
+import com.alessandragodoy.model.BatchCheckpoint;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.alessandragodoy.configuration.DatabaseConnection.getConnection;
+
+/**
+ * Data Access Object (DAO) for the checkpoints of the end-of-day batch runs.
+ * <p>
+ * Balance adjustments and the checkpoint that records them are committed in the same transaction, so a resumed
+ * run never applies a chunk twice.
+ * </p>
+ */
+public class BatchCheckpointDAO {
+
+	// MySQL error code for a duplicate primary or unique key.
+	private static final int DUPLICATE_ENTRY_ERROR = 1062;
+
+	/**
+	 * Creates the checkpoint table if it does not exist yet.
+	 *
+	 * @throws RuntimeException if a database access error occurs
+	 */
+	public void createTableIfNotExists() {
+		String sql = "CREATE TABLE IF NOT EXISTS batch_checkpoint (run_date DATE NOT NULL, "
+				+ "partition_index INT NOT NULL, range_start INT NOT NULL, range_end INT NOT NULL, "
+				+ "last_account_number VARCHAR(20), completed BOOLEAN NOT NULL DEFAULT FALSE, "
+				+ "PRIMARY KEY (run_date, partition_index))";
+		try (Connection connection = getConnection(); Statement statement = connection.createStatement()) {
+			statement.executeUpdate(sql);
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Finds the checkpoints of every partition of the given run.
+	 *
+	 * @param runDate the business date of the run
+	 * @return the checkpoints ordered by partition index, or an empty list if the run has not been planned yet
+	 * @throws RuntimeException if a database access error occurs
+	 */
+	public List<BatchCheckpoint> findCheckpoints(LocalDate runDate) {
+		String sql = "SELECT * FROM batch_checkpoint WHERE run_date = ? ORDER BY partition_index";
+		List<BatchCheckpoint> checkpoints = new ArrayList<>();
+		try (Connection connection = getConnection(); PreparedStatement statement = connection.prepareStatement(sql)) {
+
+			statement.setDate(1, Date.valueOf(runDate));
+			ResultSet resultSet = statement.executeQuery();
+
+			while (resultSet.next()) {
+				checkpoints.add(new BatchCheckpoint(runDate, resultSet.getInt("partition_index"),
+						resultSet.getInt("range_start"), resultSet.getInt("range_end"),
+						resultSet.getString("last_account_number"), resultSet.getBoolean("completed")));
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+		return checkpoints;
+	}
+
+	/**
+	 * Saves the initial checkpoints of a newly planned run in a single transaction, so a run is either fully
+	 * planned or not planned at all.
+	 *
+	 * @param checkpoints the checkpoints of every partition of the run
+	 * @return true if the plan was saved, or false if another run already planned the same date
+	 * @throws RuntimeException if a database access error occurs
+	 */
+	public boolean saveCheckpoints(List<BatchCheckpoint> checkpoints) {
+		String sql = "INSERT INTO batch_checkpoint (run_date, partition_index, range_start, range_end) "
+				+ "VALUES (?, ?, ?, ?)";
+		try (Connection connection = getConnection()) {
+			connection.setAutoCommit(false);
+			try (PreparedStatement statement = connection.prepareStatement(sql)) {
+
+				for (BatchCheckpoint checkpoint : checkpoints) {
+					statement.setDate(1, Date.valueOf(checkpoint.getRunDate()));
+					statement.setInt(2, checkpoint.getPartitionIndex());
+					statement.setInt(3, checkpoint.getRangeStart());
+					statement.setInt(4, checkpoint.getRangeEnd());
+					statement.addBatch();
+				}
+				statement.executeBatch();
+
+				connection.commit();
+				return true;
+			} catch (SQLException e) {
+				connection.rollback();
+				if (e.getErrorCode() == DUPLICATE_ENTRY_ERROR) {
+					return false;
+				}
+				throw e;
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Applies a chunk of balance adjustments and advances the partition checkpoint in a single transaction.
+	 * <p>
+	 * The checkpoint only advances if it still holds the expected previous account number and is not completed.
+	 * Otherwise another run has already committed progress on this partition, so the chunk is rolled back instead of
+	 * being applied twice.
+	 * </p>
+	 *
+	 * @param checkpoint                the checkpoint of the partition being processed
+	 * @param expectedLastAccountNumber the last account number committed before this chunk, or null if none
+	 * @param adjustments               the amount to add to each account balance, keyed by account number
+	 * @param lastAccountNumber         the last account number covered by this chunk
+	 * @param completed                 whether this chunk finishes the partition
+	 * @throws RuntimeException if a database access error occurs or another run advanced the partition
+	 */
+	public void saveProgress(BatchCheckpoint checkpoint, String expectedLastAccountNumber,
+			Map<String, Double> adjustments, String lastAccountNumber, boolean completed) {
+		String checkpointSql = "UPDATE batch_checkpoint SET last_account_number = ?, completed = ? "
+				+ "WHERE run_date = ? AND partition_index = ? AND last_account_number <=> ? AND completed = FALSE";
+		String updateSql = "UPDATE bank_account SET balance = balance + ? WHERE account_number = ?";
+		try (Connection connection = getConnection()) {
+			connection.setAutoCommit(false);
+			try (PreparedStatement progress = connection.prepareStatement(checkpointSql);
+				 PreparedStatement update = connection.prepareStatement(updateSql)) {
+
+				// Advancing the checkpoint first locks its row, so a concurrent run waits here and then matches nothing.
+				progress.setString(1, lastAccountNumber);
+				progress.setBoolean(2, completed);
+				progress.setDate(3, Date.valueOf(checkpoint.getRunDate()));
+				progress.setInt(4, checkpoint.getPartitionIndex());
+				progress.setString(5, expectedLastAccountNumber);
+				if (progress.executeUpdate() == 0) {
+					connection.rollback();
+					throw new RuntimeException(
+							"Partition " + checkpoint.getPartitionIndex() + " was advanced by another batch run");
+				}
+
+				for (Map.Entry<String, Double> adjustment : adjustments.entrySet()) {
+					update.setDouble(1, adjustment.getValue());
+					update.setString(2, adjustment.getKey());
+					update.addBatch();
+				}
+				update.executeBatch();
+
+				connection.commit();
+			} catch (SQLException e) {
+				connection.rollback();
+				throw e;
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException("Error saving batch progress", e);
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package com.alessandragodoy.persistence;
+
+import com.alessandragodoy.model.IdempotentResult;
+import com.alessandragodoy.model.MovementType;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+
+import static com.alessandragodoy.configuration.DatabaseConnection.getConnection;
+
+/**
+ * Data Access Object (DAO) for the idempotency keys of deposits and withdrawals.
+ * <p>
+ * A key is stored in the same transaction as the balance update it guards, so after a crash a movement is either
+ * applied with its key recorded or not applied at all. Keys are kept until they are purged with
+ * {@link #deleteKeysCreatedBefore(LocalDateTime)}, which the end-of-day batch runs.
+ * </p>
+ */
+public class IdempotencyKeyDAO {
+
+	public static final int MAX_KEY_LENGTH = 64;
+
+	// MySQL error code for a duplicate primary or unique key.
+	private static final int DUPLICATE_ENTRY_ERROR = 1062;
+
+	/**
+	 * Creates the idempotency key table if it does not exist yet.
+	 *
+	 * @throws RuntimeException if a database access error occurs
+	 */
+	public void createTableIfNotExists() {
+		String sql = "CREATE TABLE IF NOT EXISTS idempotency_key (idempotency_key VARCHAR(" + MAX_KEY_LENGTH
+				+ ") NOT NULL, movement_type VARCHAR(20) NOT NULL, account_number VARCHAR(20) NOT NULL, "
+				+ "amount DOUBLE NOT NULL, balance DOUBLE NOT NULL, "
+				+ "created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, PRIMARY KEY (idempotency_key), "
+				+ "INDEX idx_idempotency_key_created_at (created_at))";
+		try (Connection connection = getConnection(); Statement statement = connection.createStatement()) {
+			statement.executeUpdate(sql);
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Finds the recorded result of the movement made with the given key.
+	 *
+	 * @param idempotencyKey the idempotency key to look up
+	 * @return the recorded result, or null if no movement was made with this key
+	 * @throws RuntimeException if a database access error occurs
+	 */
+	public IdempotentResult findResult(String idempotencyKey) {
+		String sql = "SELECT * FROM idempotency_key WHERE idempotency_key = ?";
+		try (Connection connection = getConnection(); PreparedStatement statement = connection.prepareStatement(sql)) {
+
+			statement.setString(1, idempotencyKey);
+			ResultSet resultSet = statement.executeQuery();
+
+			if (resultSet.next()) {
+				return new IdempotentResult(idempotencyKey,
+						MovementType.valueOf(resultSet.getString("movement_type")),
+						resultSet.getString("account_number"), resultSet.getDouble("amount"),
+						resultSet.getDouble("balance"));
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+		return null;
+	}
+
+	/**
+	 * Applies a balance movement and records its idempotency key in a single transaction.
+	 * <p>
+	 * A withdrawal only updates the balance if it stays at or above the given minimum, so concurrent withdrawals
+	 * cannot together exceed the account limit.
+	 * </p>
+	 *
+	 * @param idempotencyKey the idempotency key of the request
+	 * @param movementType   the type of movement to apply
+	 * @param accountNumber  the account number of the account to update
+	 * @param amount         the amount of the movement, must be greater than zero
+	 * @param minimumBalance the lowest balance a withdrawal may leave; ignored for deposits
+	 * @return the result of the movement, or null if the key was already recorded and nothing was applied
+	 * @throws IllegalStateException if the withdrawal would leave the balance below the minimum; nothing is applied
+	 * @throws RuntimeException      if a database access error occurs
+	 */
+	public IdempotentResult applyMovement(String idempotencyKey, MovementType movementType, String accountNumber,
+			double amount, double minimumBalance) {
+		String insertSql = "INSERT INTO idempotency_key (idempotency_key, movement_type, account_number, amount, "
+				+ "balance) VALUES (?, ?, ?, ?, 0)";
+		String updateSql = movementType == MovementType.DEPOSIT
+				? "UPDATE bank_account SET balance = balance + ? WHERE account_number = ?"
+				: "UPDATE bank_account SET balance = balance - ? WHERE account_number = ? AND balance - ? >= ?";
+		String balanceSql = "SELECT balance FROM bank_account WHERE account_number = ?";
+		String resultSql = "UPDATE idempotency_key SET balance = ? WHERE idempotency_key = ?";
+		try (Connection connection = getConnection()) {
+			connection.setAutoCommit(false);
+			try (PreparedStatement insert = connection.prepareStatement(insertSql);
+				 PreparedStatement update = connection.prepareStatement(updateSql);
+				 PreparedStatement select = connection.prepareStatement(balanceSql);
+				 PreparedStatement result = connection.prepareStatement(resultSql)) {
+
+				// Claiming the key first makes a concurrent duplicate fail on the primary key before any update.
+				insert.setString(1, idempotencyKey);
+				insert.setString(2, movementType.name());
+				insert.setString(3, accountNumber);
+				insert.setDouble(4, amount);
+				try {
+					insert.executeUpdate();
+				} catch (SQLException e) {
+					if (e.getErrorCode() != DUPLICATE_ENTRY_ERROR) {
+						throw e;
+					}
+					connection.rollback();
+					return null;
+				}
+
+				update.setDouble(1, amount);
+				update.setString(2, accountNumber);
+				if (movementType == MovementType.WITHDRAWAL) {
+					update.setDouble(3, amount);
+					update.setDouble(4, minimumBalance);
+				}
+				if (update.executeUpdate() == 0 && movementType == MovementType.WITHDRAWAL) {
+					connection.rollback();
+					throw new IllegalStateException("Withdrawal limit exceeded for account " + accountNumber);
+				}
+
+				select.setString(1, accountNumber);
+				ResultSet resultSet = select.executeQuery();
+				double balance = resultSet.next() ? resultSet.getDouble("balance") : 0;
+
+				result.setDouble(1, balance);
+				result.setString(2, idempotencyKey);
+				result.executeUpdate();
+
+				connection.commit();
+				return new IdempotentResult(idempotencyKey, movementType, accountNumber, amount, balance);
+			} catch (SQLException e) {
+				connection.rollback();
+				throw e;
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException("Error during idempotent operation", e);
+		}
+	}
+
+	/**
+	 * Deletes the idempotency keys recorded before the given time.
+	 *
+	 * @param cutoff the creation time before which keys are deleted
+	 * @return the number of keys deleted
+	 * @throws RuntimeException if a database access error occurs
+	 */
+	public int deleteKeysCreatedBefore(LocalDateTime cutoff) {
+		String sql = "DELETE FROM idempotency_key WHERE created_at < ?";
+		try (Connection connection = getConnection(); PreparedStatement statement = connection.prepareStatement(sql)) {
+
+			statement.setTimestamp(1, Timestamp.valueOf(cutoff));
+			return statement.executeUpdate();
+
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package com.alessandragodoy.persistence;
+
+import com.alessandragodoy.model.BankAccount;
+import com.alessandragodoy.model.CheckingAccount;
+import com.alessandragodoy.model.Client;
+import com.alessandragodoy.model.SavingsAccount;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static com.alessandragodoy.configuration.DatabaseConnection.getConnection;
+
+/**
+ * Data Access Object (DAO) for reading a consistent snapshot of clients and accounts for reporting.
+ */
+public class PortfolioSnapshotDAO {
+
+	private static final int FETCH_SIZE = 1000;
+
+	/**
+	 * Reads every client and every bank account inside a single read-only, repeatable-read transaction, so both
+	 * sets reflect the same point in time.
+	 * <p>
+	 * The read view is opened with {@code START TRANSACTION WITH CONSISTENT SNAPSHOT} before any row is read, and
+	 * {@code onSnapshotOpened} runs right after it, so callers can stop holding off writers while the rows stream.
+	 * </p>
+	 *
+	 * @param onSnapshotOpened runs once the read view is fixed and before any row is read
+	 * @param clientConsumer   receives each client
+	 * @param accountConsumer  receives each account with its current balance, along with the ID of its owner
+	 * @throws RuntimeException if a database access error occurs
+	 */
+	public void loadSnapshot(Runnable onSnapshotOpened, Consumer<Client> clientConsumer,
+			BiConsumer<BankAccount, Integer> accountConsumer) {
+		String clientSql = "SELECT * FROM client";
+		String accountSql = "SELECT account_number, account_type_id, client_id, balance FROM bank_account";
+		try (Connection connection = getConnection()) {
+			connection.setReadOnly(true);
+			connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+			connection.setAutoCommit(false);
+			try (Statement begin = connection.createStatement();
+				 PreparedStatement clients = connection.prepareStatement(clientSql);
+				 PreparedStatement accounts = connection.prepareStatement(accountSql)) {
+
+				begin.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT");
+				onSnapshotOpened.run();
+
+				clients.setFetchSize(FETCH_SIZE);
+				try (ResultSet resultSet = clients.executeQuery()) {
+					while (resultSet.next()) {
+						clientConsumer.accept(new Client(resultSet.getInt("client_id"),
+								resultSet.getString("first_name"), resultSet.getString("last_name"),
+								resultSet.getString("dni"), resultSet.getString("email")));
+					}
+				}
+
+				accounts.setFetchSize(FETCH_SIZE);
+				try (ResultSet resultSet = accounts.executeQuery()) {
+					while (resultSet.next()) {
+						String accountNumber = resultSet.getString("account_number");
+						BankAccount account = resultSet.getInt("account_type_id") == 1 ? new SavingsAccount(
+								accountNumber) : new CheckingAccount(accountNumber);
+						account.setBalance(resultSet.getDouble("balance"));
+						accountConsumer.accept(account, resultSet.getInt("client_id"));
+					}
+				}
+				connection.commit();
+			} catch (SQLException e) {
+				connection.rollback();
+				throw e;
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException("Error loading portfolio snapshot", e);
+		}
+	}
+}
@@ -3,6 +3,7 @@ package com.alessandragodoy.service;
 import com.alessandragodoy.model.*;
 import com.alessandragodoy.persistence.BankAccountDAO;
 import com.alessandragodoy.persistence.ClientDAO;
+import com.alessandragodoy.persistence.IdempotencyKeyDAO;
 
 import java.util.function.Predicate;
 
@@ -10,13 +11,24 @@ import java.util.function.Predicate;
  * Provides services for managing clients, opening accounts, and processing transactions.
  * <p>
  * This class supports client registration, account opening (savings and checking accounts),
- * and operations like deposits, withdrawals, and balance checks.
+ * and operations like deposits, withdrawals, and balance checks. Deposits and withdrawals accept an optional
+ * idempotency key so that retried requests are applied only once.
  * </p>
  */
 public class BankService {
 
+	private static final int IDEMPOTENCY_CACHE_SIZE = 10_000;
+	private static final long IDEMPOTENCY_KEY_TTL_MILLIS = 24 * 60 * 60 * 1000L;
+	private static final int IDEMPOTENCY_CACHE_STRIPES = 16;
+	private static final String WITHDRAWAL_LIMIT_EXCEEDED = "\nLímte de retiro excedido. Operaion no permitida.";
+
 	private final ClientDAO clientDAO = new ClientDAO();
 	private final BankAccountDAO bankAccountDAO = new BankAccountDAO();
+	private final IdempotencyKeyDAO idempotencyKeyDAO = new IdempotencyKeyDAO();
+	private final IdempotencyCache idempotencyCache = new IdempotencyCache(IDEMPOTENCY_CACHE_SIZE,
+			IDEMPOTENCY_KEY_TTL_MILLIS, IDEMPOTENCY_CACHE_STRIPES);
+	private final PortfolioReportService portfolioReportService;
+	private volatile boolean idempotencyTableReady;
 
 	// Validates email format using a regular expression.
 	private final Predicate<String> isEmailValid = email -> email.matches("^[A-Za-z0-9_.-]+@[A-Za-z0-9.-]+$");
@@ -24,6 +36,23 @@ public class BankService {
 	// Validates DNI format, expecting exactly 8 digits.
 	private final Predicate<String> isDniValid = dni -> dni.matches("[0-9]{8}");
 
+	// Validates an optional idempotency key, which must not be blank or longer than its column.
+	private final Predicate<String> isIdempotencyKeyValid = key -> key == null || (!key.isBlank()
+			&& key.length() <= IdempotencyKeyDAO.MAX_KEY_LENGTH);
+
+	public BankService() {
+		this(null);
+	}
+
+	/**
+	 * Creates a bank service that reports new accounts and balance movements to the given portfolio snapshot.
+	 *
+	 * @param portfolioReportService the portfolio snapshot to keep up to date, or null to report nothing
+	 */
+	public BankService(PortfolioReportService portfolioReportService) {
+		this.portfolioReportService = portfolioReportService;
+	}
+
 	/**
 	 * Registers a new client with the specified details.
 	 *
@@ -79,7 +108,12 @@ public class BankService {
 				accountType == AccountType.SAVINGS ? new SavingsAccount(accountNumber) : new CheckingAccount(
 						accountNumber);
 
-		bankAccountDAO.saveAccount(account, client.getIdClient());
+		trackPortfolioChange(() -> {
+			bankAccountDAO.saveAccount(account, client.getIdClient());
+			if (portfolioReportService != null) {
+				portfolioReportService.recordAccountOpened(account, client);
+			}
+		});
 		client.addAccount(account);
 
 		System.out.println("\nCuenta creada con éxito. Número de cuenta " + account.getAccountNumber());
@@ -100,21 +134,48 @@ public class BankService {
 	 *
 	 * @param accountNumber the account number of the account to deposit into
 	 * @param amount        the amount to deposit, must be greater than zero
+	 * @return the balance right after the deposit
 	 * @throws IllegalArgumentException if the deposit amount is less than or equal to zero
 	 */
-	public void deposit(String accountNumber, double amount) {
+	public double deposit(String accountNumber, double amount) {
+		return deposit(accountNumber, amount, null);
+	}
+
+	/**
+	 * Deposits a specified amount into the given account at most once per idempotency key.
+	 * <p>
+	 * A retry carrying a key that was already processed is not applied again; it returns the balance reported by
+	 * the original request.
+	 * </p>
+	 *
+	 * @param accountNumber  the account number of the account to deposit into
+	 * @param amount         the amount to deposit, must be greater than zero
+	 * @param idempotencyKey the key identifying this request across retries, or null to always apply it
+	 * @return the balance right after the deposit
+	 * @throws IllegalArgumentException if the deposit amount is less than or equal to zero, the key is blank or too
+	 *                                  long, or the key was already used for a different operation
+	 */
+	public double deposit(String accountNumber, double amount, String idempotencyKey) {
 		if (amount <= 0) {
 			throw new IllegalArgumentException("El monton a depositar debe ser mayor a 0.");
 		}
+		if (!isIdempotencyKeyValid.test(idempotencyKey)) {
+			throw new IllegalArgumentException("Clave de idempotencia inválida. No puede estar vacía ni superar los "
+					+ IdempotencyKeyDAO.MAX_KEY_LENGTH + " caracteres.");
+		}
+		IdempotentResult previous = findPreviousResult(idempotencyKey, MovementType.DEPOSIT, accountNumber, amount);
+		if (previous != null) {
+			return replay(previous);
+		}
 		BankAccount account = bankAccountDAO.findAccount(accountNumber);
 		if (account == null) {
 			throw new RuntimeException("Cuenta no encontrada.");
 		}
 
 		bankAccountDAO.updateBalance(account);
-		bankAccountDAO.deposit(accountNumber, amount);
-		account.deposit(amount);
+		applyMovement(account, MovementType.DEPOSIT, amount, idempotencyKey, 0);
 		System.out.println("\nDepósito exitoso. Nuevo balance: $" + account.getBalance());
+		return account.getBalance();
 	}
 
 
@@ -123,30 +184,158 @@ public class BankService {
 	 *
 	 * @param accountNumber the account number of the account to withdraw from
 	 * @param amount        the amount to withdraw, must be greater than zero
+	 * @return the balance right after the withdrawal
 	 * @throws IllegalArgumentException if the withdrawal amount is less than or equal to zero
 	 */
-	public void withdraw(String accountNumber, double amount) {
+	public double withdraw(String accountNumber, double amount) {
+		return withdraw(accountNumber, amount, null);
+	}
+
+	/**
+	 * Withdraws a specified amount from the given account at most once per idempotency key.
+	 * <p>
+	 * A retry carrying a key that was already processed is not applied again; it returns the balance reported by
+	 * the original request.
+	 * </p>
+	 *
+	 * @param accountNumber  the account number of the account to withdraw from
+	 * @param amount         the amount to withdraw, must be greater than zero
+	 * @param idempotencyKey the key identifying this request across retries, or null to always apply it
+	 * @return the balance right after the withdrawal
+	 * @throws IllegalArgumentException if the withdrawal amount is less than or equal to zero, the key is blank or
+	 *                                  too long, or the key was already used for a different operation
+	 */
+	public double withdraw(String accountNumber, double amount, String idempotencyKey) {
 		if (amount <= 0) {
 			throw new IllegalArgumentException("Monto a retirar debe ser mayor a 0.");
 		}
+		if (!isIdempotencyKeyValid.test(idempotencyKey)) {
+			throw new IllegalArgumentException("Clave de idempotencia inválida. No puede estar vacía ni superar los "
+					+ IdempotencyKeyDAO.MAX_KEY_LENGTH + " caracteres.");
+		}
+		IdempotentResult previous = findPreviousResult(idempotencyKey, MovementType.WITHDRAWAL, accountNumber,
+				amount);
+		if (previous != null) {
+			return replay(previous);
+		}
 		BankAccount account = bankAccountDAO.findAccount(accountNumber);
 		if (account == null) {
 			throw new RuntimeException("Cuenta no encontrada.");
 		}
 		bankAccountDAO.updateBalance(account);
-		if (account.getAccountType() == AccountType.SAVINGS && (account.getBalance() - amount >= 0)) {
-			bankAccountDAO.withdraw(accountNumber, amount);
-			account.withdraw(amount);
-			System.out.println("\nRetiro exitoso. Nuevo balance: $" + account.getBalance());
-		} else if (account.getAccountType() == AccountType.CHECKING && (account.getBalance() - amount >= -500)) {
-			bankAccountDAO.withdraw(accountNumber, amount);
-			account.withdraw(amount);
-			System.out.println("\nRetiro exitoso. Nuevo balance: $" + account.getBalance());
+		double limit = account.getAccountType() == AccountType.CHECKING ? -500 : 0;
+		// Keyed withdrawals check the limit inside their transaction, after the key has been claimed.
+		if (idempotencyKey == null && account.getBalance() - amount < limit) {
+			throw new RuntimeException(WITHDRAWAL_LIMIT_EXCEEDED);
+		}
+		applyMovement(account, MovementType.WITHDRAWAL, amount, idempotencyKey, limit);
+		System.out.println("\nRetiro exitoso. Nuevo balance: $" + account.getBalance());
+		return account.getBalance();
+	}
+
+	/**
+	 * Applies a movement to the database and to the given account object, recording its idempotency key if any.
+	 *
+	 * @param account        the account to apply the movement to, with its current balance
+	 * @param movementType   the type of movement to apply
+	 * @param amount         the amount of the movement
+	 * @param idempotencyKey the key identifying the request, or null if it has none
+	 * @param minimumBalance the lowest balance a withdrawal may leave; ignored for deposits
+	 * @throws RuntimeException if a keyed withdrawal would leave the balance below the minimum
+	 */
+	private void applyMovement(BankAccount account, MovementType movementType, double amount,
+			String idempotencyKey, double minimumBalance) {
+		trackPortfolioChange(() -> {
+			String accountNumber = account.getAccountNumber();
+			if (idempotencyKey == null) {
+				if (movementType == MovementType.DEPOSIT) {
+					bankAccountDAO.deposit(accountNumber, amount);
+					account.deposit(amount);
+				} else {
+					bankAccountDAO.withdraw(accountNumber, amount);
+					account.withdraw(amount);
+				}
+			} else {
+				IdempotentResult result;
+				try {
+					result = idempotencyKeyDAO.applyMovement(idempotencyKey, movementType, accountNumber, amount,
+							minimumBalance);
+				} catch (IllegalStateException e) {
+					throw new RuntimeException(WITHDRAWAL_LIMIT_EXCEEDED, e);
+				}
+				if (result == null) {
+					// A concurrent request with the same key committed first, so report its result instead.
+					IdempotentResult previous = findPreviousResult(idempotencyKey, movementType, accountNumber,
+							amount);
+					if (previous == null) {
+						throw new RuntimeException("No se encontró el resultado de la operación previa con esta clave.");
+					}
+					account.setBalance(previous.getBalance());
+					return;
+				}
+				idempotencyCache.put(result);
+				account.setBalance(result.getBalance());
+			}
+
+			if (portfolioReportService != null) {
+				portfolioReportService.recordBalanceChange(accountNumber,
+						movementType == MovementType.DEPOSIT ? amount : -amount);
+			}
+		});
+	}
+
+	/**
+	 * Finds the result of a previous request made with the given idempotency key, checking the in-memory cache
+	 * before the database.
+	 *
+	 * @param idempotencyKey the key of the request, or null if it has none
+	 * @param movementType   the movement type of the request
+	 * @param accountNumber  the account number of the request
+	 * @param amount         the amount of the request
+	 * @return the previous result, or null if the key has not been used
+	 * @throws IllegalArgumentException if the key was already used for a different operation
+	 */
+	private IdempotentResult findPreviousResult(String idempotencyKey, MovementType movementType,
+			String accountNumber, double amount) {
+		if (idempotencyKey == null) {
+			return null;
+		}
+		IdempotentResult previous = idempotencyCache.get(idempotencyKey);
+		if (previous == null) {
+			if (!idempotencyTableReady) {
+				idempotencyKeyDAO.createTableIfNotExists();
+				idempotencyTableReady = true;
+			}
+			previous = idempotencyKeyDAO.findResult(idempotencyKey);
+			if (previous != null) {
+				idempotencyCache.put(previous);
+			}
+		}
+		if (previous != null && !previous.matches(movementType, accountNumber, amount)) {
+			throw new IllegalArgumentException("Clave de idempotencia ya utilizada en otra operación.");
+		}
+		return previous;
+	}
+
+	/**
+	 * Runs a database write together with its report to the portfolio snapshot, so that a concurrent snapshot
+	 * reload sees both or neither.
+	 *
+	 * @param change the database write followed by its report to the portfolio snapshot
+	 */
+	private void trackPortfolioChange(Runnable change) {
+		if (portfolioReportService == null) {
+			change.run();
 		} else {
-			throw new RuntimeException("\nLímte de retiro excedido. Operaion no permitida.");
+			portfolioReportService.trackChange(change);
 		}
 	}
 
+	private double replay(IdempotentResult previous) {
+		System.out.println("\nOperación ya procesada. Balance: $" + previous.getBalance());
+		return previous.getBalance();
+	}
+
 	/**
 	 * Checks and returns the balance of the specified account.
 	 *
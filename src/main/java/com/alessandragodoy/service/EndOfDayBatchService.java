@@ -0,0 +1,198 @@
+package com.alessandragodoy.service;
+
+import com.alessandragodoy.model.*;
+import com.alessandragodoy.persistence.BankAccountDAO;
+import com.alessandragodoy.persistence.BatchCheckpointDAO;
+import com.alessandragodoy.persistence.IdempotencyKeyDAO;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs the nightly end-of-day batch over every bank account.
+ * <p>
+ * Savings accounts with a positive balance earn one day of interest and checking accounts with a negative
+ * balance are charged an overdraft fee. Accounts are partitioned by client ID range and each partition is streamed
+ * and adjusted in parallel on a fork-join pool. Progress is checkpointed per chunk, so running the same date again
+ * after a failure only processes what is left. Once every partition is done, idempotency keys older than the
+ * retention period are purged.
+ * </p>
+ */
+public class EndOfDayBatchService {
+
+	private static final double SAVINGS_ANNUAL_INTEREST_RATE = 0.02;
+	private static final double OVERDRAFT_FEE = 10.0;
+	private static final int FETCH_SIZE = 500;
+	private static final int CHUNK_SIZE = 500;
+	private static final int IDEMPOTENCY_KEY_RETENTION_DAYS = 7;
+
+	private final BankAccountDAO bankAccountDAO = new BankAccountDAO();
+	private final BatchCheckpointDAO batchCheckpointDAO = new BatchCheckpointDAO();
+	private final IdempotencyKeyDAO idempotencyKeyDAO = new IdempotencyKeyDAO();
+	private final int parallelism;
+
+	public EndOfDayBatchService() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public EndOfDayBatchService(int parallelism) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("El paralelismo debe ser mayor a 0.");
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Runs the end-of-day batch for the given date, resuming it if a previous attempt did not finish.
+	 *
+	 * @param runDate the business date being closed
+	 * @return the report of every partition processed by this invocation
+	 * @throws RuntimeException if any partition fails; the other partitions still run and keep their progress
+	 */
+	public List<BatchPartitionReport> runEndOfDay(LocalDate runDate) {
+		batchCheckpointDAO.createTableIfNotExists();
+
+		List<BatchCheckpoint> checkpoints = batchCheckpointDAO.findCheckpoints(runDate);
+		if (checkpoints.isEmpty()) {
+			checkpoints = planPartitions(runDate);
+			if (!batchCheckpointDAO.saveCheckpoints(checkpoints)) {
+				// Another run planned the same date first, so work from its plan instead.
+				checkpoints = batchCheckpointDAO.findCheckpoints(runDate);
+			}
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		List<BatchPartitionReport> reports = new ArrayList<>();
+		RuntimeException failure = null;
+		try {
+			List<ForkJoinTask<BatchPartitionReport>> tasks = new ArrayList<>();
+			for (BatchCheckpoint checkpoint : checkpoints) {
+				if (!checkpoint.isCompleted()) {
+					tasks.add(pool.submit(new PartitionWorker(checkpoint)));
+				}
+			}
+			for (ForkJoinTask<BatchPartitionReport> task : tasks) {
+				try {
+					BatchPartitionReport report = task.join();
+					reports.add(report);
+					System.out.println(report);
+				} catch (RuntimeException e) {
+					if (failure == null) {
+						failure = new RuntimeException("Cierre diario incompleto. Vuelva a ejecutarlo para reanudar.", e);
+					} else {
+						failure.addSuppressed(e);
+					}
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+		if (failure != null) {
+			throw failure;
+		}
+
+		idempotencyKeyDAO.createTableIfNotExists();
+		int purgedKeys = idempotencyKeyDAO.deleteKeysCreatedBefore(
+				LocalDateTime.now().minusDays(IDEMPOTENCY_KEY_RETENTION_DAYS));
+		System.out.println("Claves de idempotencia eliminadas: " + purgedKeys);
+
+		System.out.println("\nCierre diario del " + runDate + " completado.");
+		return reports;
+	}
+
+	/**
+	 * Splits the client ID space into one contiguous range per unit of parallelism.
+	 * <p>
+	 * The last range is open-ended so accounts of clients registered after planning are still covered.
+	 * </p>
+	 *
+	 * @param runDate the business date being closed
+	 * @return the initial checkpoints of the run, or an empty list if there are no accounts
+	 */
+	private List<BatchCheckpoint> planPartitions(LocalDate runDate) {
+		List<BatchCheckpoint> checkpoints = new ArrayList<>();
+		int[] range = bankAccountDAO.findClientIdRange();
+		if (range == null) {
+			return checkpoints;
+		}
+
+		long span = (long) range[1] - range[0] + 1;
+		long size = (span + parallelism - 1) / parallelism;
+		for (int i = 0; i < parallelism && i * size < span; i++) {
+			int start = (int) (range[0] + i * size);
+			boolean last = (i + 1) * size >= span || i == parallelism - 1;
+			int end = last ? Integer.MAX_VALUE : (int) (range[0] + (i + 1) * size);
+			checkpoints.add(new BatchCheckpoint(runDate, i, start, end, null, false));
+		}
+		return checkpoints;
+	}
+
+	/**
+	 * Calculates the end-of-day balance adjustment for an account.
+	 *
+	 * @param account the account with its current balance
+	 * @return the amount to add to the balance, zero if the account needs no adjustment
+	 */
+	private double calculateAdjustment(BankAccount account) {
+		if (account.getAccountType() == AccountType.SAVINGS && account.getBalance() > 0) {
+			return Math.round(account.getBalance() * SAVINGS_ANNUAL_INTEREST_RATE / 365 * 100) / 100.0;
+		} else if (account.getAccountType() == AccountType.CHECKING && account.getBalance() < 0) {
+			return -OVERDRAFT_FEE;
+		}
+		return 0;
+	}
+
+	/**
+	 * Streams one partition and commits its adjustments in chunks, advancing the checkpoint with each chunk. The
+	 * worker stops as soon as another run is found to have advanced the same partition.
+	 */
+	private class PartitionWorker implements Callable<BatchPartitionReport> {
+		private final BatchCheckpoint checkpoint;
+		private final Map<String, Double> pending = new LinkedHashMap<>();
+		private String committedAccountNumber;    // Last account number stored in the checkpoint
+		private String lastAccountNumber;
+		private long processed;
+		private long adjusted;
+
+		PartitionWorker(BatchCheckpoint checkpoint) {
+			this.checkpoint = checkpoint;
+			this.committedAccountNumber = checkpoint.getLastAccountNumber();
+			this.lastAccountNumber = committedAccountNumber;
+		}
+
+		@Override
+		public BatchPartitionReport call() {
+			long start = System.nanoTime();
+
+			bankAccountDAO.streamAccounts(checkpoint.getRangeStart(), checkpoint.getRangeEnd(), lastAccountNumber,
+					FETCH_SIZE, this::process);
+			batchCheckpointDAO.saveProgress(checkpoint, committedAccountNumber, pending, lastAccountNumber, true);
+
+			long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+			return new BatchPartitionReport(checkpoint.getPartitionIndex(), processed, adjusted, elapsedMillis);
+		}
+
+		private void process(BankAccount account) {
+			double adjustment = calculateAdjustment(account);
+			if (adjustment != 0) {
+				pending.put(account.getAccountNumber(), adjustment);
+				adjusted++;
+			}
+			lastAccountNumber = account.getAccountNumber();
+			processed++;
+
+			if (processed % CHUNK_SIZE == 0) {
+				batchCheckpointDAO.saveProgress(checkpoint, committedAccountNumber, pending, lastAccountNumber, false);
+				committedAccountNumber = lastAccountNumber;
+				pending.clear();
+			}
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.alessandragodoy.service;
+
+import com.alessandragodoy.model.IdempotentResult;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded in-memory cache of recent idempotent results, with entries that expire after a fixed time.
+ * <p>
+ * Keys are spread over independent stripes. Lookups read a {@link ConcurrentHashMap} without locking; inserts lock
+ * only their stripe to keep its insertion order and evict the oldest entries once the stripe is full.
+ * </p>
+ */
+public class IdempotencyCache {
+
+	private final Stripe[] stripes;
+	private final int stripeCapacity;
+	private final long ttlNanos;
+
+	/**
+	 * Creates a cache holding up to the given number of entries.
+	 *
+	 * @param maxEntries  the maximum number of entries, must be greater than zero
+	 * @param ttlMillis   the time after which an entry expires, in milliseconds, must be greater than zero
+	 * @param stripeCount the number of independent stripes, must be greater than zero
+	 * @throws IllegalArgumentException if any argument is less than or equal to zero
+	 */
+	public IdempotencyCache(int maxEntries, long ttlMillis, int stripeCount) {
+		if (maxEntries <= 0 || ttlMillis <= 0 || stripeCount <= 0) {
+			throw new IllegalArgumentException("Los parámetros de la caché deben ser mayores a 0.");
+		}
+		this.stripes = new Stripe[stripeCount];
+		for (int i = 0; i < stripeCount; i++) {
+			stripes[i] = new Stripe();
+		}
+		this.stripeCapacity = Math.max(1, maxEntries / stripeCount);
+		this.ttlNanos = ttlMillis * 1_000_000;
+	}
+
+	/**
+	 * Finds the cached result for the given key.
+	 *
+	 * @param idempotencyKey the idempotency key to look up
+	 * @return the cached result, or null if the key is not cached or has expired
+	 */
+	public IdempotentResult get(String idempotencyKey) {
+		Entry entry = stripeFor(idempotencyKey).entries.get(idempotencyKey);
+		if (entry == null || System.nanoTime() - entry.createdAt > ttlNanos) {
+			return null;
+		}
+		return entry.result;
+	}
+
+	/**
+	 * Caches a result under its idempotency key, evicting the oldest or expired entries of its stripe if needed.
+	 *
+	 * @param result the result to cache
+	 */
+	public void put(IdempotentResult result) {
+		Stripe stripe = stripeFor(result.getIdempotencyKey());
+		long now = System.nanoTime();
+		synchronized (stripe) {
+			Entry previous = stripe.entries.put(result.getIdempotencyKey(), new Entry(result, now));
+			if (previous != null) {
+				// The entry is fresh again, so it moves to the back of the eviction order.
+				stripe.order.remove(result.getIdempotencyKey());
+			}
+			stripe.order.addLast(result.getIdempotencyKey());
+			while (!stripe.order.isEmpty()) {
+				String oldest = stripe.order.peekFirst();
+				Entry entry = stripe.entries.get(oldest);
+				boolean expired = entry == null || now - entry.createdAt > ttlNanos;
+				if (!expired && stripe.entries.size() <= stripeCapacity) {
+					break;
+				}
+				stripe.order.pollFirst();
+				stripe.entries.remove(oldest);
+			}
+		}
+	}
+
+	private Stripe stripeFor(String idempotencyKey) {
+		int hash = idempotencyKey.hashCode();
+		return stripes[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % stripes.length];
+	}
+
+	private static class Stripe {
+		private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+		private final ArrayDeque<String> order = new ArrayDeque<>();    // Guarded by the stripe
+	}
+
+	private static class Entry {
+		private final IdempotentResult result;
+		private final long createdAt;
+
+		Entry(IdempotentResult result, long createdAt) {
+			this.result = result;
+			this.createdAt = createdAt;
+		}
+	}
+}
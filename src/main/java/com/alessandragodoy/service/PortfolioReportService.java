@@ -0,0 +1,401 @@
+package com.alessandragodoy.service;
+
+import com.alessandragodoy.model.AccountType;
+import com.alessandragodoy.model.BankAccount;
+import com.alessandragodoy.model.Client;
+import com.alessandragodoy.model.ClientBalance;
+import com.alessandragodoy.persistence.PortfolioSnapshotDAO;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Answers portfolio reports from an in-memory columnar snapshot of accounts and clients.
+ * <p>
+ * The snapshot keeps one primitive array per column (balances in cents, account types and client slots) so that
+ * totals, group-by and percentile queries run as parallel scans without querying the database. {@link #reload()}
+ * reads a consistent copy from the database; between reloads, balance changes and new accounts reported by
+ * {@link BankService} are queued and folded in by {@link #refresh()}. Queries always read the last published
+ * snapshot and never block on a refresh. Changes are made through {@link #trackChange(Runnable)}, which holds them
+ * off only while a reload opens its read view, so no change is both loaded and replayed.
+ * </p>
+ * <p>
+ * Adjustments written by {@link EndOfDayBatchService} are not tracked, so {@link #refresh()} keeps returning the
+ * balances from before a batch run until {@link #reload()} is called.
+ * </p>
+ */
+public class PortfolioReportService {
+
+	private static final AccountType[] ACCOUNT_TYPES = AccountType.values();
+
+	private final PortfolioSnapshotDAO portfolioSnapshotDAO = new PortfolioSnapshotDAO();
+	private final Queue<PendingChange> pendingChanges = new ConcurrentLinkedQueue<>();
+	private final ReentrantReadWriteLock reloadLock = new ReentrantReadWriteLock();
+	private volatile Snapshot snapshot = new SnapshotBuilder().build();
+	private volatile boolean loaded;
+
+	/**
+	 * Replaces the snapshot with a consistent copy of every client and account in the database.
+	 * <p>
+	 * Tracked changes wait only until the read view is open; the rows are streamed afterwards without holding them
+	 * off. Changes queued before the read view opens are discarded, since the database already reflects them.
+	 * </p>
+	 */
+	public synchronized void reload() {
+		SnapshotBuilder builder = new SnapshotBuilder();
+		reloadLock.writeLock().lock();
+		try {
+			pendingChanges.clear();
+			portfolioSnapshotDAO.loadSnapshot(() -> reloadLock.writeLock().unlock(), builder::addClient,
+					(account, clientId) -> builder.addAccount(account.getAccountNumber(), account.getAccountType(),
+							toCents(account.getBalance()), clientId));
+		} finally {
+			if (reloadLock.isWriteLockedByCurrentThread()) {
+				reloadLock.writeLock().unlock();
+			}
+		}
+		snapshot = builder.build();
+		loaded = true;
+	}
+
+	/**
+	 * Folds the queued changes into a new snapshot, loading it from the database first if it was never loaded.
+	 * <p>
+	 * When only balances changed, the new snapshot copies the balance column and shares every other column with
+	 * the current one. The columns are only rebuilt when new accounts have to be appended.
+	 * </p>
+	 */
+	public synchronized void refresh() {
+		if (!loaded) {
+			reload();
+			return;
+		}
+		List<PendingChange> changes = new ArrayList<>();
+		boolean accountsOpened = false;
+		PendingChange pending;
+		while ((pending = pendingChanges.poll()) != null) {
+			changes.add(pending);
+			accountsOpened |= pending.client != null;
+		}
+		if (changes.isEmpty()) {
+			return;
+		}
+
+		Snapshot current = snapshot;
+		if (!accountsOpened) {
+			long[] balances = current.balances.clone();
+			for (PendingChange change : changes) {
+				Integer row = current.accountRows.get(change.accountNumber);
+				if (row != null) {
+					balances[row] += change.deltaCents;
+				}
+			}
+			snapshot = current.withBalances(balances);
+			return;
+		}
+
+		SnapshotBuilder builder = new SnapshotBuilder(current);
+		for (PendingChange change : changes) {
+			if (change.client != null) {
+				builder.addClient(change.client);
+				builder.addAccount(change.accountNumber, change.accountType, change.deltaCents,
+						change.client.getIdClient());
+			} else {
+				builder.addToBalance(change.accountNumber, change.deltaCents);
+			}
+		}
+		snapshot = builder.build();
+	}
+
+	/**
+	 * Runs a database write together with the recording of its change, so that a reload either loads the write and
+	 * discards the recorded change, or misses the write and keeps the change for the next refresh.
+	 * <p>
+	 * Changes run concurrently with each other and only wait while a reload is reading the database.
+	 * </p>
+	 *
+	 * @param change the database write followed by the matching call to record its change
+	 */
+	public void trackChange(Runnable change) {
+		reloadLock.readLock().lock();
+		try {
+			change.run();
+		} finally {
+			reloadLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Queues a balance movement to be applied on the next refresh. Must be called from
+	 * {@link #trackChange(Runnable)}, together with the database write it records.
+	 *
+	 * @param accountNumber the account number of the account whose balance changed
+	 * @param delta         the amount added to the balance, negative for withdrawals
+	 */
+	public void recordBalanceChange(String accountNumber, double delta) {
+		pendingChanges.add(new PendingChange(accountNumber, null, toCents(delta), null));
+	}
+
+	/**
+	 * Queues a newly opened account to be added on the next refresh. Must be called from
+	 * {@link #trackChange(Runnable)}, together with the database write it records.
+	 *
+	 * @param account the new bank account
+	 * @param client  the client who owns the account
+	 */
+	public void recordAccountOpened(BankAccount account, Client client) {
+		pendingChanges.add(new PendingChange(account.getAccountNumber(), account.getAccountType(),
+				toCents(account.getBalance()), client));
+	}
+
+	/**
+	 * Calculates the total balance held in each account type.
+	 *
+	 * @return the total balance per account type
+	 */
+	public Map<AccountType, Double> totalBalanceByType() {
+		Snapshot current = snapshot;
+		long[] totals = IntStream.range(0, current.size).parallel().collect(() -> new long[ACCOUNT_TYPES.length],
+				(acc, i) -> acc[current.types[i]] += current.balances[i], PortfolioReportService::addInto);
+
+		Map<AccountType, Double> result = new EnumMap<>(AccountType.class);
+		for (AccountType type : ACCOUNT_TYPES) {
+			result.put(type, fromCents(totals[type.ordinal()]));
+		}
+		return result;
+	}
+
+	/**
+	 * Counts the accounts of each account type.
+	 *
+	 * @return the number of accounts per account type
+	 */
+	public Map<AccountType, Long> accountCountByType() {
+		Snapshot current = snapshot;
+		long[] counts = IntStream.range(0, current.size).parallel().collect(() -> new long[ACCOUNT_TYPES.length],
+				(acc, i) -> acc[current.types[i]]++, PortfolioReportService::addInto);
+
+		Map<AccountType, Long> result = new EnumMap<>(AccountType.class);
+		for (AccountType type : ACCOUNT_TYPES) {
+			result.put(type, counts[type.ordinal()]);
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the clients with the highest combined balance across all their accounts.
+	 *
+	 * @param limit the maximum number of clients to return, must be greater than zero
+	 * @return the top clients ordered by total balance, highest first
+	 * @throws IllegalArgumentException if the limit is less than or equal to zero
+	 */
+	public List<ClientBalance> topClientsByBalance(int limit) {
+		if (limit <= 0) {
+			throw new IllegalArgumentException("El límite debe ser mayor a 0.");
+		}
+		Snapshot current = snapshot;
+		int clientCount = current.clientIds.length;
+		long[] totals = IntStream.range(0, current.size).parallel().collect(() -> new long[clientCount],
+				(acc, i) -> acc[current.clientSlots[i]] += current.balances[i], PortfolioReportService::addInto);
+
+		PriorityQueue<Integer> top = new PriorityQueue<>(Comparator.comparingLong(slot -> totals[slot]));
+		for (int slot = 0; slot < clientCount; slot++) {
+			top.add(slot);
+			if (top.size() > limit) {
+				top.poll();
+			}
+		}
+
+		List<ClientBalance> result = new ArrayList<>(top.size());
+		while (!top.isEmpty()) {
+			int slot = top.poll();
+			result.add(new ClientBalance(current.clientIds[slot], current.clientNames[slot], fromCents(totals[slot])));
+		}
+		Collections.reverse(result);
+		return result;
+	}
+
+	/**
+	 * Calculates a balance percentile using the nearest-rank method.
+	 *
+	 * @param accountType the account type to restrict the calculation to, or null to include every account
+	 * @param percentile  the percentile to calculate, greater than 0 and up to 100
+	 * @return the balance at the given percentile, or 0 if there are no matching accounts
+	 * @throws IllegalArgumentException if the percentile is out of range
+	 */
+	public double percentileBalance(AccountType accountType, double percentile) {
+		if (percentile <= 0 || percentile > 100) {
+			throw new IllegalArgumentException("El percentil debe estar entre 0 y 100.");
+		}
+		Snapshot current = snapshot;
+		long[] balances = IntStream.range(0, current.size).parallel()
+				.filter(i -> accountType == null || current.types[i] == accountType.ordinal())
+				.mapToLong(i -> current.balances[i]).toArray();
+		if (balances.length == 0) {
+			return 0;
+		}
+
+		Arrays.parallelSort(balances);
+		int rank = (int) Math.ceil(percentile / 100 * balances.length);
+		return fromCents(balances[Math.max(rank, 1) - 1]);
+	}
+
+	private static void addInto(long[] target, long[] source) {
+		for (int i = 0; i < target.length; i++) {
+			target[i] += source[i];
+		}
+	}
+
+	private static long toCents(double amount) {
+		return Math.round(amount * 100);
+	}
+
+	private static double fromCents(long cents) {
+		return cents / 100.0;
+	}
+
+	/**
+	 * A balance movement (no client) or a newly opened account (with its client) waiting for the next refresh.
+	 */
+	private static class PendingChange {
+		private final String accountNumber;
+		private final AccountType accountType;
+		private final long deltaCents;
+		private final Client client;
+
+		PendingChange(String accountNumber, AccountType accountType, long deltaCents, Client client) {
+			this.accountNumber = accountNumber;
+			this.accountType = accountType;
+			this.deltaCents = deltaCents;
+			this.client = client;
+		}
+	}
+
+	/**
+	 * Immutable columnar view of the portfolio. Row {@code i} of every account column describes the same account;
+	 * {@code clientSlots[i]} indexes the client columns.
+	 */
+	private static class Snapshot {
+		private final int size;
+		private final String[] accountNumbers;
+		private final long[] balances;
+		private final byte[] types;
+		private final int[] clientSlots;
+		private final int[] clientIds;
+		private final String[] clientNames;
+		private final Map<String, Integer> accountRows;
+		private final Map<Integer, Integer> clientSlotsById;
+
+		Snapshot(int size, String[] accountNumbers, long[] balances, byte[] types, int[] clientSlots,
+				int[] clientIds, String[] clientNames, Map<String, Integer> accountRows,
+				Map<Integer, Integer> clientSlotsById) {
+			this.size = size;
+			this.accountNumbers = accountNumbers;
+			this.balances = balances;
+			this.types = types;
+			this.clientSlots = clientSlots;
+			this.clientIds = clientIds;
+			this.clientNames = clientNames;
+			this.accountRows = accountRows;
+			this.clientSlotsById = clientSlotsById;
+		}
+
+		Snapshot withBalances(long[] balances) {
+			return new Snapshot(size, accountNumbers, balances, types, clientSlots, clientIds, clientNames,
+					accountRows, clientSlotsById);
+		}
+	}
+
+	/**
+	 * Accumulates rows into growable columns and publishes them as a {@link Snapshot}.
+	 */
+	private static class SnapshotBuilder {
+		private int size;
+		private String[] accountNumbers;
+		private long[] balances;
+		private byte[] types;
+		private int[] clientSlots;
+		private int clientCount;
+		private int[] clientIds;
+		private String[] clientNames;
+		private final Map<String, Integer> accountRows;
+		private final Map<Integer, Integer> clientSlotsById;
+
+		SnapshotBuilder() {
+			accountNumbers = new String[16];
+			balances = new long[16];
+			types = new byte[16];
+			clientSlots = new int[16];
+			clientIds = new int[16];
+			clientNames = new String[16];
+			accountRows = new HashMap<>();
+			clientSlotsById = new HashMap<>();
+		}
+
+		SnapshotBuilder(Snapshot base) {
+			size = base.size;
+			accountNumbers = base.accountNumbers.clone();
+			balances = base.balances.clone();
+			types = base.types.clone();
+			clientSlots = base.clientSlots.clone();
+			clientCount = base.clientIds.length;
+			clientIds = base.clientIds.clone();
+			clientNames = base.clientNames.clone();
+			accountRows = new HashMap<>(base.accountRows);
+			clientSlotsById = new HashMap<>(base.clientSlotsById);
+		}
+
+		void addClient(Client client) {
+			if (clientSlotsById.containsKey(client.getIdClient())) {
+				return;
+			}
+			if (clientCount == clientIds.length) {
+				clientIds = Arrays.copyOf(clientIds, clientCount * 2 + 1);
+				clientNames = Arrays.copyOf(clientNames, clientCount * 2 + 1);
+			}
+			clientIds[clientCount] = client.getIdClient();
+			clientNames[clientCount] = client.getFirstname() + " " + client.getLastName();
+			clientSlotsById.put(client.getIdClient(), clientCount++);
+		}
+
+		void addAccount(String accountNumber, AccountType accountType, long balanceCents, int clientId) {
+			Integer existing = accountRows.get(accountNumber);
+			if (existing != null) {
+				balances[existing] += balanceCents;
+				return;
+			}
+			Integer slot = clientSlotsById.get(clientId);
+			if (slot == null) {
+				addClient(new Client(clientId, "", "", "", ""));
+				slot = clientSlotsById.get(clientId);
+			}
+			if (size == balances.length) {
+				int capacity = size * 2 + 1;
+				accountNumbers = Arrays.copyOf(accountNumbers, capacity);
+				balances = Arrays.copyOf(balances, capacity);
+				types = Arrays.copyOf(types, capacity);
+				clientSlots = Arrays.copyOf(clientSlots, capacity);
+			}
+			accountNumbers[size] = accountNumber;
+			balances[size] = balanceCents;
+			types[size] = (byte) accountType.ordinal();
+			clientSlots[size] = slot;
+			accountRows.put(accountNumber, size++);
+		}
+
+		void addToBalance(String accountNumber, long deltaCents) {
+			Integer row = accountRows.get(accountNumber);
+			if (row != null) {
+				balances[row] += deltaCents;
+			}
+		}
+
+		Snapshot build() {
+			return new Snapshot(size, accountNumbers, balances, types, clientSlots,
+					Arrays.copyOf(clientIds, clientCount), Arrays.copyOf(clientNames, clientCount),
+					accountRows, clientSlotsById);
+		}
+	}
+}